@@ -18,6 +18,30 @@ import java.nio.file.StandardCopyOption;
 @Service
 public class VideoCompressionService {
 
+    // The profile asks for 1 kbit/s but CRF 50 decides the real rate, which lands well below this
+    private static final int MAX_COMPRESSED_VIDEO_BITRATE = 500_000;
+    private static final double OUTPUT_FRAME_RATE = 15;
+
+    /**
+     * Checks whether a video already matches the compression profile, so producer-compressed
+     * uploads are not trusted blindly
+     *
+     * @param filePath The path to the video file
+     * @return true if the video is H.264 at or below the profile's bitrate and frame rate
+     */
+    public boolean isCompressed(String filePath) {
+        avutil.av_log_set_level(avutil.AV_LOG_QUIET);
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(filePath)) {
+            grabber.start();
+            return grabber.getVideoCodec() == avcodec.AV_CODEC_ID_H264
+                    && grabber.getVideoBitrate() > 0
+                    && grabber.getVideoBitrate() <= MAX_COMPRESSED_VIDEO_BITRATE
+                    && grabber.getFrameRate() <= OUTPUT_FRAME_RATE + 0.5;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Compresses a video file and replaces the original file with the compressed version
      *
@@ -44,7 +68,7 @@ public class VideoCompressionService {
             recorder.setVideoBitrate(1000); // Lower bitrate for compression
             recorder.setVideoOption("preset", "ultrafast");
             recorder.setVideoQuality(50); // Higher value = lower quality (20-28 is good range)
-            recorder.setFrameRate(15);
+            recorder.setFrameRate(OUTPUT_FRAME_RATE);
 
             // Handle audio if present
             if (grabber.getAudioChannels() > 0) {
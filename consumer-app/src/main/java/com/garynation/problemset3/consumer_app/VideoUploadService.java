@@ -69,6 +69,18 @@ public class VideoUploadService {
      * @return CompletableFuture that completes when the upload is finished
      */
     public CompletableFuture<String> uploadVideo(InputStream videoData, String fileName) {
+        return uploadVideo(videoData, fileName, false);
+    }
+
+    /**
+     * Uploads a video asynchronously, compressing it unless the producer already did and the file matches the profile
+     *
+     * @param videoData Input stream containing the video data
+     * @param fileName Original filename of the video
+     * @param precompressed Whether the producer already applied the compression profile
+     * @return CompletableFuture that completes when the upload is finished
+     */
+    public CompletableFuture<String> uploadVideo(InputStream videoData, String fileName, boolean precompressed) {
         CompletableFuture<String> future = new CompletableFuture<>();
 
         threadPool.execute(() -> {
@@ -104,16 +116,22 @@ public class VideoUploadService {
 
 
                     }
-                    // Compress the video - here we also need file locking
-                    String compressedFilePath = compressionService.compressVideo(originalFile.getAbsolutePath());
-
-                    // If compression was successful, move compressed file to final location
-                    File compressedFile = new File(compressedFilePath);
-                    if (compressedFile.exists()) {
-                        Files.move(Paths.get(compressedFile.getAbsolutePath()), Paths.get(originalFile.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
-                        System.out.println("File compressed and replaced: " + uniqueFileName);
+                    // Only trust the producer's flag if the file actually matches the profile
+                    if (precompressed && compressionService.isCompressed(originalFile.getAbsolutePath())) {
+                        // The producer already ran the same profile, compressing again only loses quality
+                        System.out.println("File pre-compressed by producer, skipping compression: " + uniqueFileName);
                     } else {
-                        System.out.println("Compressed file not found.");
+                        // Compress the video - here we also need file locking
+                        String compressedFilePath = compressionService.compressVideo(originalFile.getAbsolutePath());
+
+                        // If compression was successful, move compressed file to final location
+                        File compressedFile = compressedFilePath != null ? new File(compressedFilePath) : null;
+                        if (compressedFile != null && compressedFile.exists()) {
+                            Files.move(Paths.get(compressedFile.getAbsolutePath()), Paths.get(originalFile.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
+                            System.out.println("File compressed and replaced: " + uniqueFileName);
+                        } else {
+                            System.out.println("Compressed file not found.");
+                        }
                     }
 
                     logger.info("Video uploaded successfully: " + uniqueFileName);
@@ -26,6 +26,9 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @RequestMapping("/api/videos")
 public class VideoUploadController {
 
+    // Lets producers exclude our processing time from their link throughput measurement
+    private static final String PROCESSING_TIME_HEADER = "X-Processing-Time-Millis";
+
     private final VideoUploadService videoUploadService;
 
     public VideoUploadController(VideoCompressionService compressionService, VideoUploadProperties properties) {
@@ -34,11 +37,15 @@ public class VideoUploadController {
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadVideo(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<String> uploadVideo(@RequestParam("file") MultipartFile file,
+                                              @RequestParam(value = "precompressed", defaultValue = "false") boolean precompressed) {
+        // The multipart body has already been read, so everything from here on is processing time
+        long start = System.nanoTime();
         try {
             CompletableFuture<String> future = videoUploadService.uploadVideo(
                     file.getInputStream(),
-                    file.getOriginalFilename()
+                    file.getOriginalFilename(),
+                    precompressed
             );
 
             // Return immediately, processing continues asynchronously
@@ -46,7 +53,9 @@ public class VideoUploadController {
 
             // Alternatively, you could wait for the result:
              String fileName = future.get();
-             return ResponseEntity.ok("Video uploaded successfully: " + fileName);
+             return ResponseEntity.ok()
+                     .header(PROCESSING_TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)))
+                     .body("Video uploaded successfully: " + fileName);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to upload video: " + e.getMessage());
@@ -0,0 +1,60 @@
+package com.garynation.problemset3.consumer_app;
+
+import com.garynation.problemset3.consumer_app.config.VideoUploadProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VideoUploadServiceTests {
+
+	private VideoCompressionService compressionService;
+	private VideoUploadService uploadService;
+	private String uploadedFileName;
+
+	@BeforeEach
+	void setUp() {
+		compressionService = mock(VideoCompressionService.class);
+		uploadService = new VideoUploadService(compressionService, new VideoUploadProperties());
+	}
+
+	@AfterEach
+	void tearDown() {
+		uploadService.shutdown();
+		if (uploadedFileName != null) {
+			new File("uploaded_videos", uploadedFileName).delete();
+		}
+	}
+
+	@Test
+	void precompressedUploadSkipsCompression() throws Exception {
+		when(compressionService.isCompressed(anyString())).thenReturn(true);
+
+		uploadedFileName = uploadService.uploadVideo(
+				new ByteArrayInputStream(new byte[]{1, 2, 3}), "precompressed-test.mp4", true
+		).get(10, TimeUnit.SECONDS);
+
+		verify(compressionService, never()).compressVideo(anyString());
+	}
+
+	@Test
+	void precompressedUploadNotMatchingProfileIsCompressed() throws Exception {
+		when(compressionService.isCompressed(anyString())).thenReturn(false);
+
+		uploadedFileName = uploadService.uploadVideo(
+				new ByteArrayInputStream(new byte[]{1, 2, 3}), "precompressed-mismatch-test.mp4", true
+		).get(10, TimeUnit.SECONDS);
+
+		verify(compressionService).compressVideo(anyString());
+	}
+
+}
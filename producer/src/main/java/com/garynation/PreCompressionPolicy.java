@@ -0,0 +1,166 @@
+package com.garynation;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides per file whether compressing on the producer is cheaper than sending the original.
+ * Link throughput, encode speed and output bitrate are measured from previous uploads and encodes.
+ */
+public class PreCompressionPolicy {
+    // Output bitrate assumed until the first encode is measured. CRF 50 decides the real rate,
+    // so this matches the ceiling the consumer accepts rather than the nominal -b:v value.
+    private static final double DEFAULT_OUTPUT_BITRATE = 500_000;
+    // Sources within this factor of the output bitrate barely shrink, so re-encoding only costs quality
+    private static final double MIN_SHRINK_FACTOR = 2.0;
+    // Fraction of the machine's cores that must be idle before we start an encode
+    private static final double MIN_CPU_HEADROOM = 0.25;
+    // Seconds of media encoded per wall second until the first encode is measured
+    private static final double DEFAULT_ENCODE_SPEED = 4.0;
+    // Weight of the newest sample in the moving averages
+    private static final double SMOOTHING = 0.3;
+    // Files sent as-is after a failed encode before we try encoding again
+    private static final int FAILURE_BACKOFF_FILES = 5;
+
+    private final DoubleSupplier cpuLoad;
+    private final int cores;
+
+    private double linkBitsPerSecond = -1;
+    private double encodeSpeed = DEFAULT_ENCODE_SPEED;
+    private double outputBitrate = -1;
+    private int encodesInFlight = 0;
+    private int filesToSkip = 0;
+
+    public PreCompressionPolicy() {
+        this(PreCompressionPolicy::readSystemCpuLoad, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param cpuLoad Returns the system-wide CPU load as a fraction of all cores, or a negative value if unavailable
+     * @param cores   Number of cores available to encodes
+     */
+    public PreCompressionPolicy(DoubleSupplier cpuLoad, int cores) {
+        this.cpuLoad = cpuLoad;
+        this.cores = cores;
+    }
+
+    /**
+     * Records how long it took to send an upload body over the link
+     */
+    public synchronized void recordUpload(long bytes, long elapsedNanos) {
+        if (bytes <= 0 || elapsedNanos <= 0) {
+            return;
+        }
+        double sample = bytes * 8.0 / (elapsedNanos / 1_000_000_000.0);
+        linkBitsPerSecond = linkBitsPerSecond < 0 ? sample : smooth(linkBitsPerSecond, sample);
+    }
+
+    /**
+     * Records a finished encode and releases its slot
+     *
+     * @param bytes           Length of the original file
+     * @param compressedBytes Length of the encoded file
+     * @param bitrate         Bitrate of the original file in bits per second
+     * @param elapsedNanos    How long the encode took
+     */
+    public synchronized void recordEncode(long bytes, long compressedBytes, long bitrate, long elapsedNanos) {
+        encodesInFlight = Math.max(0, encodesInFlight - 1);
+        if (bytes <= 0 || bitrate <= 0 || elapsedNanos <= 0) {
+            return;
+        }
+        double mediaSeconds = bytes * 8.0 / bitrate;
+        double speedSample = mediaSeconds / (elapsedNanos / 1_000_000_000.0);
+        encodeSpeed = smooth(encodeSpeed, speedSample);
+
+        if (compressedBytes > 0) {
+            // Output/input size ratio applied to the source bitrate
+            double outputSample = bitrate * ((double) compressedBytes / bytes);
+            outputBitrate = outputBitrate < 0 ? outputSample : smooth(outputBitrate, outputSample);
+        }
+    }
+
+    /**
+     * Records a failed encode, releases its slot and sends the next few files as-is
+     */
+    public synchronized void recordEncodeFailure() {
+        encodesInFlight = Math.max(0, encodesInFlight - 1);
+        filesToSkip = FAILURE_BACKOFF_FILES;
+    }
+
+    /**
+     * Decides whether to pre-compress a file. A true result reserves an encode slot, which must be
+     * released with {@link #recordEncode} or {@link #recordEncodeFailure}.
+     *
+     * @param file    The video about to be uploaded
+     * @param bitrate The video's bitrate in bits per second, or -1 if unknown
+     * @return true if encoding locally is expected to finish sooner than sending the original
+     */
+    public synchronized boolean shouldPreCompress(File file, long bitrate) {
+        if (bitrate <= 0) {
+            System.out.println("Unknown bitrate, sending original: " + file.getName());
+            return false;
+        }
+        double expectedOutputBitrate = outputBitrate < 0 ? DEFAULT_OUTPUT_BITRATE : outputBitrate;
+        if (bitrate < expectedOutputBitrate * MIN_SHRINK_FACTOR) {
+            System.out.println("Bitrate already low, sending original: " + file.getName());
+            return false;
+        }
+        if (linkBitsPerSecond < 0) {
+            // The first upload goes out as-is so that we have a throughput measurement
+            System.out.println("Link throughput not measured yet, sending original: " + file.getName());
+            return false;
+        }
+        if (filesToSkip > 0) {
+            filesToSkip--;
+            System.out.println("Recent pre-compression failed, sending original: " + file.getName());
+            return false;
+        }
+        double headroom = getCpuHeadroom();
+        if (headroom < MIN_CPU_HEADROOM) {
+            System.out.println("Not enough idle CPU, sending original: " + file.getName());
+            return false;
+        }
+
+        // Compare costs per second of media
+        double rawTransferSeconds = bitrate / linkBitsPerSecond;
+        double compressedSeconds = 1.0 / encodeSpeed + expectedOutputBitrate / linkBitsPerSecond;
+        boolean preCompress = compressedSeconds < rawTransferSeconds;
+
+        System.out.printf("Pre-compress %s: %b (link %.0f kbit/s, source %d kbit/s, encode %.1fx, cpu idle %.0f%%)%n",
+                file.getName(), preCompress, linkBitsPerSecond / 1000, bitrate / 1000, encodeSpeed, headroom * 100);
+        if (preCompress) {
+            encodesInFlight++;
+        }
+        return preCompress;
+    }
+
+    /**
+     * Fraction of cores that are idle. Each encode runs on one core, so our in-flight encodes are a
+     * lower bound on busy cores while the lagging CPU reading catches up with them.
+     * Returns 0 when no CPU reading is available so that files are sent as-is.
+     */
+    private double getCpuHeadroom() {
+        double load = cpuLoad.getAsDouble();
+        if (load < 0 || Double.isNaN(load)) {
+            return 0.0;
+        }
+        double busyCores = Math.max(load * cores, encodesInFlight);
+        return Math.max(0.0, (cores - busyCores) / cores);
+    }
+
+    private static double readSystemCpuLoad() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        double loadAverage = osBean.getSystemLoadAverage();
+        if (loadAverage < 0) {
+            // Load average is not available on every platform
+            return -1;
+        }
+        return loadAverage / osBean.getAvailableProcessors();
+    }
+
+    private static double smooth(double current, double sample) {
+        return SMOOTHING * sample + (1 - SMOOTHING) * current;
+    }
+}
@@ -13,12 +13,29 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class Producer {
+    private static final String PROCESSING_TIME_HEADER = "X-Processing-Time-Millis";
+
     private final String consumerUrl;
     // private static final int DEFAULT_THREAD_POOL_SIZE = 4;
 
 
+    private final PreCompressionPolicy preCompressionPolicy;
+    private final VideoPreCompressor preCompressor;
+
+
     public Producer(String consumerUrl) {
+        this(consumerUrl, false);
+    }
+
+    public Producer(String consumerUrl, boolean preCompress) {
         this.consumerUrl = consumerUrl;
+        if (preCompress) {
+            VideoPreCompressor compressor = new VideoPreCompressor();
+            this.preCompressor = compressor.isAvailable() ? compressor : null;
+        } else {
+            this.preCompressor = null;
+        }
+        this.preCompressionPolicy = new PreCompressionPolicy();
     }
 
     public void uploadVideo(String filePath) {
@@ -28,6 +45,37 @@ public class Producer {
             return;
         }
 
+        File compressedFile = null;
+        if (preCompressor != null) {
+            long bitrate = preCompressor.probeBitrate(file);
+            if (preCompressionPolicy.shouldPreCompress(file, bitrate)) {
+                long start = System.nanoTime();
+                try {
+                    compressedFile = preCompressor.compressVideo(file);
+                } finally {
+                    if (compressedFile != null) {
+                        preCompressionPolicy.recordEncode(file.length(), compressedFile.length(), bitrate, System.nanoTime() - start);
+                    } else {
+                        preCompressionPolicy.recordEncodeFailure();
+                    }
+                }
+            }
+        }
+
+        try {
+            if (compressedFile != null) {
+                sendFile(compressedFile, file.getName(), true);
+            } else {
+                sendFile(file, file.getName(), false);
+            }
+        } finally {
+            if (compressedFile != null) {
+                compressedFile.delete();
+            }
+        }
+    }
+
+    private void sendFile(File file, String fileName, boolean precompressed) {
         try {
             String boundary = "------Boundary" + System.currentTimeMillis();
             HttpURLConnection connection = (HttpURLConnection) URI.create(consumerUrl).toURL().openConnection();
@@ -35,12 +83,20 @@ public class Producer {
             connection.setDoOutput(true);
             connection.setRequestMethod("POST");
             connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            // Stream the body instead of buffering it in memory
+            connection.setChunkedStreamingMode(8192);
 
+            long start = System.nanoTime();
             try (OutputStream outputStream = connection.getOutputStream();
                  PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, "UTF-8"), true)) {
 
                 writer.append("--").append(boundary).append("\r\n");
-                writer.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(file.getName()).append("\"\r\n");
+                writer.append("Content-Disposition: form-data; name=\"precompressed\"\r\n");
+                writer.append("\r\n");
+                writer.append(String.valueOf(precompressed)).append("\r\n");
+
+                writer.append("--").append(boundary).append("\r\n");
+                writer.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(fileName).append("\"\r\n");
                 writer.append("Content-Type: ").append(Files.probeContentType(file.toPath())).append("\r\n");
                 writer.append("\r\n");
                 writer.flush();
@@ -55,27 +111,33 @@ public class Producer {
 
             // Get server response
             int responseCode = connection.getResponseCode();
+
+            // The server only responds after reading the whole body, so this covers the transfer.
+            // Time the consumer spent processing the upload is reported back and excluded.
+            long elapsedNanos = System.nanoTime() - start;
+            long processingMillis = connection.getHeaderFieldLong(PROCESSING_TIME_HEADER, 0);
+            preCompressionPolicy.recordUpload(file.length(), elapsedNanos - TimeUnit.MILLISECONDS.toNanos(processingMillis));
             if (responseCode == HttpURLConnection.HTTP_OK) {
-                System.out.println("Upload successful: " + filePath);
+                System.out.println("Upload successful: " + fileName + (precompressed ? " (pre-compressed)" : ""));
             } else if (responseCode == 429) {
-                System.out.println("Queue full, retrying later: " + filePath);
-                retryUpload(filePath);
+                System.out.println("Queue full, retrying later: " + fileName);
+                retryUpload(file, fileName, precompressed);
             } else {
                 System.out.println("Upload failed. Response code: " + responseCode);
             }
 
             connection.disconnect();
         } catch (IOException e) {
-            System.err.println("Error uploading file: " + filePath);
+            System.err.println("Error uploading file: " + fileName);
             e.printStackTrace();
         }
     }
 
-    private void retryUpload(String filePath) {
+    private void retryUpload(File file, String fileName, boolean precompressed) {
         try {
             System.out.println("Queue full, retrying in 5 seconds.");
             Thread.sleep(5000); // Wait before retrying
-            uploadVideo(filePath);
+            sendFile(file, fileName, precompressed);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.err.println("Retry interrupted.");
@@ -200,7 +262,12 @@ public class Producer {
         // Ensure output is flushed
         System.out.flush();
 
-        Producer producer = new Producer(consumerUrl);
+        boolean preCompress = Boolean.parseBoolean(System.getenv("PRODUCER_PRECOMPRESS"));
+        if (preCompress) {
+            System.out.println("Producer-side pre-compression enabled.");
+        }
+
+        Producer producer = new Producer(consumerUrl, preCompress);
 
         int threadPoolSize = getThreadPoolSizeFromEnv();
 
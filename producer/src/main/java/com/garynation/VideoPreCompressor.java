@@ -0,0 +1,160 @@
+package com.garynation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class VideoPreCompressor {
+    private static final String FFMPEG = "ffmpeg";
+    private static final String FFPROBE = "ffprobe";
+    private static final long PROBE_TIMEOUT_SECONDS = 10;
+    private static final long COMPRESS_TIMEOUT_SECONDS = 600;
+
+    private final boolean available;
+
+    public VideoPreCompressor() {
+        this.available = isToolAvailable(FFMPEG) && isToolAvailable(FFPROBE);
+        if (!available) {
+            System.out.println("ffmpeg/ffprobe not found on PATH, pre-compression disabled.");
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Reads the container bitrate of a video using ffprobe
+     *
+     * @param file The video file to probe
+     * @return The bitrate in bits per second, or -1 if it could not be determined
+     */
+    public long probeBitrate(File file) {
+        if (!available) {
+            return -1;
+        }
+        List<String> command = List.of(
+                FFPROBE, "-v", "error",
+                "-show_entries", "format=bit_rate",
+                "-of", "default=noprint_wrappers=1:nokey=1",
+                file.getAbsolutePath()
+        );
+        Process process = null;
+        File outputFile = null;
+        try {
+            // Write to a file so a hung ffprobe cannot block us past the timeout
+            outputFile = Files.createTempFile("probe_", ".txt").toFile();
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outputFile)
+                    .start();
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return -1;
+            }
+            String output = Files.readString(outputFile.toPath(), StandardCharsets.UTF_8).trim();
+            if (process.exitValue() != 0 || !output.matches("\\d+")) {
+                return -1;
+            }
+            return Long.parseLong(output);
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            return -1;
+        } finally {
+            if (outputFile != null) {
+                outputFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Compresses a video with the same H.264 profile the consumer uses, writing to a temporary file
+     *
+     * @param inputFile The original video file
+     * @return The compressed temporary file, or null if compression failed. The caller must delete it.
+     */
+    public File compressVideo(File inputFile) {
+        if (!available) {
+            return null;
+        }
+        Process process = null;
+        File outputFile = null;
+        try {
+            outputFile = Files.createTempFile("precompressed_", ".mp4").toFile();
+
+            // Mirrors VideoCompressionService in the consumer so both paths produce the same output
+            List<String> command = new ArrayList<>(List.of(
+                    FFMPEG, "-y", "-v", "quiet",
+                    "-i", inputFile.getAbsolutePath(),
+                    "-c:v", "libx264",
+                    "-b:v", "1000",
+                    "-preset", "ultrafast",
+                    // One core per encode, so the policy can budget encodes against idle cores
+                    "-threads", "1",
+                    "-crf", "50",
+                    "-r", "15",
+                    "-c:a", "aac",
+                    "-b:a", "128000",
+                    "-f", "mp4",
+                    outputFile.getAbsolutePath()
+            ));
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            if (!process.waitFor(COMPRESS_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                System.err.println("Pre-compression timed out: " + inputFile.getName());
+                outputFile.delete();
+                return null;
+            }
+            if (process.exitValue() != 0 || outputFile.length() == 0) {
+                System.err.println("Pre-compression failed: " + inputFile.getName());
+                outputFile.delete();
+                return null;
+            }
+            return outputFile;
+        } catch (IOException e) {
+            System.err.println("Error pre-compressing file: " + inputFile.getName());
+            if (outputFile != null) {
+                outputFile.delete();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Don't leave the encode running after the producer shuts down
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            if (outputFile != null) {
+                outputFile.delete();
+            }
+            return null;
+        }
+    }
+
+    private static boolean isToolAvailable(String tool) {
+        try {
+            Process process = new ProcessBuilder(tool, "-version")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
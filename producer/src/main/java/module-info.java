@@ -1,4 +1,5 @@
 module com.garynation {
+    requires java.management;
 
     exports com.garynation;
 }
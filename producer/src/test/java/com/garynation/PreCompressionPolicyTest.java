@@ -0,0 +1,98 @@
+package com.garynation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreCompressionPolicyTest {
+
+    private static final File VIDEO = new File("video.mp4");
+    private static final long HIGH_BITRATE = 8_000_000;
+    private static final long ONE_SECOND = 1_000_000_000L;
+
+    // 1 Mbit/s link
+    private static PreCompressionPolicy slowLinkPolicy(double cpuLoad, int cores) {
+        PreCompressionPolicy policy = new PreCompressionPolicy(() -> cpuLoad, cores);
+        policy.recordUpload(125_000, ONE_SECOND);
+        return policy;
+    }
+
+    @Test
+    void unknownBitrateSendsOriginal() {
+        assertFalse(slowLinkPolicy(0.0, 4).shouldPreCompress(VIDEO, -1));
+    }
+
+    @Test
+    void lowBitrateSendsOriginal() {
+        assertFalse(slowLinkPolicy(0.0, 4).shouldPreCompress(VIDEO, 200_000));
+    }
+
+    @Test
+    void unmeasuredLinkSendsOriginal() {
+        PreCompressionPolicy policy = new PreCompressionPolicy(() -> 0.0, 4);
+        assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void slowLinkWithHighBitratePreCompresses() {
+        assertTrue(slowLinkPolicy(0.0, 4).shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void fastLinkSendsOriginal() {
+        PreCompressionPolicy policy = new PreCompressionPolicy(() -> 0.0, 4);
+        // 1 Gbit/s link
+        policy.recordUpload(125_000_000, ONE_SECOND);
+        assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void busyOrUnknownCpuSendsOriginal() {
+        assertFalse(slowLinkPolicy(0.9, 4).shouldPreCompress(VIDEO, HIGH_BITRATE));
+        assertFalse(slowLinkPolicy(-1, 4).shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void encodesInFlightUseUpHeadroom() {
+        PreCompressionPolicy policy = slowLinkPolicy(0.0, 2);
+        assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+        assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+        assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+
+        policy.recordEncode(HIGH_BITRATE / 8, HIGH_BITRATE / 80, HIGH_BITRATE, ONE_SECOND / 4);
+        assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void encodesInFlightAreNotCountedTwice() {
+        // Half of 4 cores busy, which the load already includes once our encodes show up in it
+        PreCompressionPolicy policy = slowLinkPolicy(0.5, 4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+        }
+        assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void poorCompressionRaisesMinimumBitrate() {
+        PreCompressionPolicy policy = slowLinkPolicy(0.0, 4);
+        // Encoding only shrank the file to 75%, so an 8 Mbit/s source would come out at 6 Mbit/s
+        policy.recordEncode(1_000_000, 750_000, HIGH_BITRATE, ONE_SECOND / 4);
+        assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+
+    @Test
+    void failedEncodeBacksOff() {
+        PreCompressionPolicy policy = slowLinkPolicy(0.0, 4);
+        assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+        policy.recordEncodeFailure();
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+        }
+        assertTrue(policy.shouldPreCompress(VIDEO, HIGH_BITRATE));
+    }
+}